@@ -0,0 +1,391 @@
+/*
+ * Copyright 2024 REGnosys
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+'use strict';
+
+// Headless Java generation benchmark.
+//
+// Builds synthetic workspaces shaped like test.Person / com.example.Address / CreatePerson,
+// starts the bundled language server with Java generation enabled, waits until every file has
+// been validated and the generated output has settled, and reports duration and JVM allocation
+// (from a JFR recording) per run plus output size per element kind.
+//
+// The baseline (benchmark/baseline.json) is recorded per machine and not checked in; timings only
+// compare against the same hardware and JDK.
+//
+// Usage:
+//   node benchmark/codegen-benchmark.js [--sizes 10,100,1000,10000] [--check] [--update-baseline]
+//                                       [--tolerance 0.2] [--keep] [--server <path>]
+
+const path = require('path');
+const os = require('os');
+const fs = require('fs');
+const { spawn, spawnSync } = require('child_process');
+const { pathToFileURL } = require('url');
+const { createMessageConnection, StreamMessageReader, StreamMessageWriter } = require('vscode-jsonrpc/node');
+
+const EXTENSION_DIR = path.resolve(__dirname, '..');
+const BASELINE_FILE = path.join(__dirname, 'baseline.json');
+const OUTPUT_DIR = 'src/generated';
+const TYPES_PER_NAMESPACE = 100;
+const SETTLE_MS = 2000;
+const SCAN_INTERVAL_MS = 1000;
+const TIMEOUT_MS = 30 * 60 * 1000;
+
+function parseArgs(argv) {
+    const args = {
+        sizes: [10, 100, 1000, 10000],
+        check: false,
+        updateBaseline: false,
+        tolerance: 0.2,
+        keep: false,
+        server: ''
+    };
+    for (let i = 0; i < argv.length; i++) {
+        switch (argv[i]) {
+            case '--sizes': args.sizes = argv[++i].split(',').map(s => parseInt(s, 10)).filter(n => n > 0); break;
+            case '--check': args.check = true; break;
+            case '--update-baseline': args.updateBaseline = true; break;
+            case '--tolerance': args.tolerance = parseFloat(argv[++i]); break;
+            case '--keep': args.keep = true; break;
+            case '--server': args.server = argv[++i]; break;
+            default: throw new Error(`Unknown argument: ${argv[i]}`);
+        }
+    }
+    return args;
+}
+
+// `size` is the number of types; every Person/Address pair also gets a CreatePerson function.
+function writeSyntheticWorkspace(dir, size) {
+    const pairs = Math.max(1, Math.floor(size / 2));
+    const files = [];
+    let namespaceIndex = 0;
+    for (let start = 0; start < pairs; start += TYPES_PER_NAMESPACE / 2, namespaceIndex++) {
+        const end = Math.min(pairs, start + TYPES_PER_NAMESPACE / 2);
+        const lines = [`namespace bench.ns${namespaceIndex}`, 'version "${project.version}"', ''];
+        if (namespaceIndex > 0) {
+            lines.push(`import bench.ns${namespaceIndex - 1}.*`, '');
+        }
+        for (let i = start; i < end; i++) {
+            // The first type of each namespace points back into the previous one
+            const addressType = i === start && namespaceIndex > 0 ? `Address${start - 1}` : `Address${i}`;
+            lines.push(
+                `type Address${i}:`,
+                '\tstreet string (1..1)',
+                '\tcity string (0..1)',
+                '',
+                `type Person${i}:`,
+                '\tfirstName string (1..1)',
+                '\tlastName string (1..1)',
+                '\tage int (0..1)',
+                `\taddress ${addressType} (0..1)`,
+                '',
+                `func CreatePerson${i}:`,
+                '\tinputs:',
+                '\t\tfirstName string (1..1)',
+                '\t\tlastName string (1..1)',
+                '\t\tpersonAge int (0..1)',
+                '\toutput:',
+                `\t\tresult Person${i} (1..1)`,
+                '\tset result -> firstName: firstName',
+                '\tset result -> lastName: lastName',
+                '\tset result -> age: personAge',
+                ''
+            );
+        }
+        const file = path.join(dir, 'model', `bench-ns${namespaceIndex}.rosetta`);
+        fs.mkdirSync(path.dirname(file), { recursive: true });
+        fs.writeFileSync(file, lines.join('\n'), 'utf8');
+        files.push(file);
+    }
+    return files;
+}
+
+function resolveServerCommand(serverOverride, javaOpts) {
+    const languageServerDir = path.join(EXTENSION_DIR, 'src', 'rosetta');
+    const scriptPath = serverOverride || (process.platform === 'win32'
+        ? path.join(languageServerDir, 'bin', 'rune-dsl-ls.bat')
+        : path.join(languageServerDir, 'bin', 'rune-dsl-ls'));
+    if (fs.existsSync(scriptPath)) {
+        return {
+            command: scriptPath,
+            args: [],
+            options: { shell: process.platform === 'win32', env: { ...process.env, JAVA_OPTS: javaOpts.join(' ') } }
+        };
+    }
+    const repoPath = path.join(languageServerDir, 'repo');
+    const jar = fs.existsSync(repoPath)
+        ? fs.readdirSync(repoPath).find(f => f.startsWith('com.regnosys.rosetta.ide-') && f.endsWith('.jar') && !f.includes('tests'))
+        : undefined;
+    if (!jar) {
+        throw new Error(`Language server not found under ${languageServerDir}. Run build-extension.ps1 first or pass --server.`);
+    }
+    return { command: 'java', args: [...javaOpts, '-jar', path.join(repoPath, jar)], options: {} };
+}
+
+function classifyGeneratedFile(relativePath) {
+    const p = relativePath.replace(/\\/g, '/');
+    if (p.includes('/meta/')) return 'meta';
+    if (p.includes('/validation/exists/')) return 'onlyExistsValidator';
+    if (p.endsWith('TypeFormatValidator.java')) return 'typeFormatValidator';
+    if (p.includes('/validation/')) return 'validator';
+    if (p.includes('/functions/')) return 'function';
+    return 'type';
+}
+
+function measureOutput(root) {
+    const kinds = {};
+    let files = 0;
+    let bytes = 0;
+    const walk = (dir) => {
+        if (!fs.existsSync(dir)) {
+            return;
+        }
+        for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+            const full = path.join(dir, entry.name);
+            if (entry.isDirectory()) {
+                walk(full);
+            } else if (entry.name.endsWith('.java')) {
+                const size = fs.statSync(full).size;
+                const kind = classifyGeneratedFile(path.relative(root, full));
+                kinds[kind] = kinds[kind] || { files: 0, bytes: 0 };
+                kinds[kind].files++;
+                kinds[kind].bytes += size;
+                files++;
+                bytes += size;
+            }
+        }
+    };
+    walk(root);
+    return { files, bytes, kinds };
+}
+
+// Sums the last jdk.ThreadAllocationStatistics sample of every thread in the recording.
+function readAllocatedBytes(recording) {
+    if (!fs.existsSync(recording)) {
+        return undefined;
+    }
+    const jfr = process.env.JAVA_HOME ? path.join(process.env.JAVA_HOME, 'bin', 'jfr') : 'jfr';
+    const result = spawnSync(jfr, ['print', '--json', '--events', 'jdk.ThreadAllocationStatistics', recording],
+        { encoding: 'utf8', maxBuffer: 512 * 1024 * 1024, shell: process.platform === 'win32' });
+    if (result.status !== 0) {
+        console.warn(`Could not read JFR recording: ${result.stderr || result.error}`);
+        return undefined;
+    }
+    const perThread = new Map();
+    for (const event of JSON.parse(result.stdout).recording.events) {
+        const thread = event.values.thread ? event.values.thread.javaThreadId : 0;
+        perThread.set(thread, Math.max(perThread.get(thread) || 0, event.values.allocated));
+    }
+    return Array.from(perThread.values()).reduce((a, b) => a + b, 0);
+}
+
+/**
+ * Resolves with the time of the last write below the output root once it has been quiet for
+ * SETTLE_MS. Recursive file watching is used so the measurement does not compete with the server
+ * for disk I/O; where it is unavailable the output tree is scanned every SCAN_INTERVAL_MS.
+ */
+function waitForSettledOutput(workspaceDir) {
+    return new Promise((resolve) => {
+        const outputPrefix = OUTPUT_DIR + '/';
+        let lastChange = Date.now();
+        let watcher;
+        try {
+            watcher = fs.watch(workspaceDir, { recursive: true }, (event, filename) => {
+                if (filename && filename.replace(/\\/g, '/').startsWith(outputPrefix)) {
+                    lastChange = Date.now();
+                }
+            });
+        } catch (error) {
+            watcher = undefined;
+        }
+        let last = '';
+        const poll = setInterval(() => {
+            if (!watcher) {
+                const { files, bytes } = measureOutput(path.join(workspaceDir, OUTPUT_DIR));
+                const current = `${files}:${bytes}`;
+                if (current !== last) {
+                    last = current;
+                    lastChange = Date.now();
+                }
+            }
+            if (Date.now() - lastChange >= SETTLE_MS) {
+                clearInterval(poll);
+                if (watcher) {
+                    watcher.close();
+                }
+                resolve(lastChange);
+            }
+        }, watcher ? 250 : SCAN_INTERVAL_MS);
+    });
+}
+
+async function runScenario(size, args) {
+    const workspaceDir = fs.mkdtempSync(path.join(os.tmpdir(), `rune-codegen-bench-${size}-`));
+    const modelFiles = writeSyntheticWorkspace(workspaceDir, size);
+    const outputRoot = path.join(workspaceDir, OUTPUT_DIR);
+    const recording = path.join(workspaceDir, 'allocation.jfr');
+
+    const javaOpts = [
+        '-Drune.codegen.enableJava=true',
+        `-Drune.codegen.outputDir=${OUTPUT_DIR}`,
+        `-XX:StartFlightRecording=filename=${recording},settings=default,dumponexit=true`
+    ];
+    const server = resolveServerCommand(args.server, javaOpts);
+    const child = spawn(server.command, server.args, { ...server.options, cwd: workspaceDir, stdio: ['pipe', 'pipe', 'pipe'] });
+    child.stderr.on('data', () => { /* server logging is not part of the measurement */ });
+
+    const connection = createMessageConnection(new StreamMessageReader(child.stdout), new StreamMessageWriter(child.stdin));
+    const pending = new Set(modelFiles.map(f => pathToFileURL(f).toString()));
+    let shuttingDown = false;
+    const validated = new Promise((resolve, reject) => {
+        connection.onNotification('textDocument/publishDiagnostics', (params) => {
+            pending.delete(params.uri);
+            if (pending.size === 0) {
+                resolve();
+            }
+        });
+        child.on('error', (error) => reject(new Error(`Language server failed: ${error.message}`)));
+        child.on('exit', (code, signal) => {
+            if (!shuttingDown) {
+                reject(new Error(`Language server exited before validating the workspace (code ${code}, signal ${signal})`));
+            }
+        });
+    });
+    // Observed through the races below; keeps an early exit from surfacing as an unhandled rejection
+    validated.catch(() => { /* handled by the awaiting race */ });
+    connection.listen();
+
+    const start = Date.now();
+    const rootUri = pathToFileURL(workspaceDir).toString();
+    try {
+        await Promise.race([
+            connection.sendRequest('initialize', {
+                processId: process.pid,
+                rootUri,
+                workspaceFolders: [{ uri: rootUri, name: path.basename(workspaceDir) }],
+                capabilities: {}
+            }),
+            validated.then(() => new Promise(() => { /* only a failure ends this race early */ }))
+        ]);
+        connection.sendNotification('initialized', {});
+
+        let timer;
+        const timeout = new Promise((_, reject) => { timer = setTimeout(() => reject(new Error(`Timed out after ${TIMEOUT_MS} ms`)), TIMEOUT_MS); });
+        await Promise.race([validated, timeout]).finally(() => clearTimeout(timer));
+    } catch (error) {
+        child.kill();
+        connection.dispose();
+        throw error;
+    }
+    const validatedAt = Date.now();
+    const generatedAt = await waitForSettledOutput(workspaceDir);
+
+    shuttingDown = true;
+    await connection.sendRequest('shutdown');
+    connection.sendNotification('exit');
+    await new Promise(resolve => child.on('exit', resolve));
+    connection.dispose();
+
+    const output = measureOutput(outputRoot);
+    const result = {
+        size,
+        modelFiles: modelFiles.length,
+        validationMs: validatedAt - start,
+        durationMs: Math.max(generatedAt, validatedAt) - start,
+        allocatedBytes: readAllocatedBytes(recording),
+        outputFiles: output.files,
+        outputBytes: output.bytes,
+        kinds: output.kinds
+    };
+
+    if (args.keep) {
+        console.log(`Workspace kept at ${workspaceDir}`);
+    } else {
+        fs.rmSync(workspaceDir, { recursive: true, force: true });
+    }
+    return result;
+}
+
+function compareWithBaseline(results, baseline, tolerance) {
+    const regressions = [];
+    for (const result of results) {
+        const expected = baseline[result.size];
+        if (!expected) {
+            // A check without a reference would pass silently
+            regressions.push(`size ${result.size}: no baseline recorded; run with --update-baseline to record one`);
+            continue;
+        }
+        for (const metric of ['durationMs', 'allocatedBytes', 'outputBytes']) {
+            if (expected[metric] === undefined || result[metric] === undefined) {
+                continue;
+            }
+            const limit = expected[metric] * (1 + tolerance);
+            if (result[metric] > limit) {
+                regressions.push(`size ${result.size}: ${metric} ${result[metric]} exceeds baseline ${expected[metric]} (+${Math.round(tolerance * 100)}%)`);
+            }
+        }
+    }
+    return regressions;
+}
+
+async function main() {
+    const args = parseArgs(process.argv.slice(2));
+    const results = [];
+    for (const size of args.sizes) {
+        console.log(`Generating synthetic workspace with ${size} types...`);
+        const result = await runScenario(size, args);
+        results.push(result);
+        console.log(`  validated in ${result.validationMs} ms, generation settled after ${result.durationMs} ms`);
+        console.log(`  allocated: ${result.allocatedBytes !== undefined ? result.allocatedBytes : 'n/a'} bytes`);
+        console.log(`  output: ${result.outputFiles} files, ${result.outputBytes} bytes`);
+        for (const [kind, stats] of Object.entries(result.kinds)) {
+            console.log(`    ${kind}: ${stats.files} files, ${stats.bytes} bytes`);
+        }
+    }
+
+    const baseline = fs.existsSync(BASELINE_FILE) ? JSON.parse(fs.readFileSync(BASELINE_FILE, 'utf8')) : {};
+    if (args.updateBaseline) {
+        for (const result of results) {
+            baseline[result.size] = {
+                durationMs: result.durationMs,
+                allocatedBytes: result.allocatedBytes,
+                outputBytes: result.outputBytes
+            };
+        }
+        fs.writeFileSync(BASELINE_FILE, JSON.stringify(baseline, null, 2) + '\n', 'utf8');
+        console.log(`Baseline updated: ${BASELINE_FILE}`);
+    }
+
+    if (args.check) {
+        if (!fs.existsSync(BASELINE_FILE)) {
+            // Timings only compare on the machine and JDK they were recorded with, so the baseline is local
+            console.error(`No baseline at ${BASELINE_FILE}; record one on this machine with --update-baseline first`);
+            process.exit(1);
+        }
+        const regressions = compareWithBaseline(results, baseline, args.tolerance);
+        if (regressions.length > 0) {
+            regressions.forEach(r => console.error(`REGRESSION ${r}`));
+            process.exit(1);
+        }
+        console.log('No regressions against baseline');
+    }
+}
+
+main().catch((error) => {
+    console.error(error);
+    process.exit(1);
+});
@@ -20,14 +20,18 @@ import * as path from 'path';
 import * as os from 'os';
 import * as fs from 'fs';
 import * as https from 'https';
+import * as crypto from 'crypto';
 import { spawn, ChildProcess } from 'child_process';
 
 import { Trace } from 'vscode-jsonrpc';
-import { commands, window, workspace, ExtensionContext, Uri, ConfigurationTarget, WorkspaceFolder, StatusBarAlignment, StatusBarItem, ProgressLocation } from 'vscode';
-import { LanguageClient, LanguageClientOptions, ServerOptions } from 'vscode-languageclient/node';
+import { commands, window, workspace, ExtensionContext, Uri, ConfigurationTarget, WorkspaceFolder, StatusBarAlignment, StatusBarItem, ProgressLocation, OutputChannel } from 'vscode';
+import {
+    LanguageClient, LanguageClientOptions, ServerOptions, FileEvent, FileChangeType, Middleware, Executable
+} from 'vscode-languageclient/node';
 
 let lc: LanguageClient;
 let statusBarItem: StatusBarItem;
+let stoppingLanguageServer = false;
 
 const GITHUB_RAW_BASE_URL = 'https://raw.githubusercontent.com/finos/rune-dsl/main/rosetta-runtime/src/main/resources/model';
 
@@ -114,7 +118,305 @@ function getLanguageServerPath(context: ExtensionContext): { scriptPath: string;
     return { scriptPath, jarPath };
 }
 
-async function createServerOptions(context: ExtensionContext): Promise<ServerOptions> {
+interface LaunchProfile {
+    name: string;
+    /** Upper bounds of the model this profile is meant for. */
+    maxModelBytes: number;
+    maxFiles: number;
+    maxHeapMb: number;
+    gc: 'G1' | 'Z';
+    stringDeduplication: boolean;
+    tuneGcThreads: boolean;
+}
+
+const MB = 1024 * 1024;
+
+const LAUNCH_PROFILES: LaunchProfile[] = [
+    { name: 'small', maxModelBytes: 5 * MB, maxFiles: 500, maxHeapMb: 1024, gc: 'G1', stringDeduplication: false, tuneGcThreads: false },
+    { name: 'medium', maxModelBytes: 25 * MB, maxFiles: 2500, maxHeapMb: 2048, gc: 'G1', stringDeduplication: true, tuneGcThreads: false },
+    { name: 'large', maxModelBytes: 100 * MB, maxFiles: 10000, maxHeapMb: 4096, gc: 'G1', stringDeduplication: true, tuneGcThreads: true },
+    { name: 'xlarge', maxModelBytes: Infinity, maxFiles: Infinity, maxHeapMb: 8192, gc: 'Z', stringDeduplication: true, tuneGcThreads: true }
+];
+
+const LAUNCH_PROFILE_OVERRIDE_KEY = 'runeDsl.launchProfileOverride';
+
+let launchProfile: LaunchProfile | undefined;
+/** Only sizes picked automatically are bumped after an out-of-memory exit. */
+let launchProfileAuto = false;
+/** A user -Xmx wins over every profile, so a bigger profile would change nothing. */
+let userSetsMaxHeap = false;
+/** The -Xmx value the server was launched with, e.g. "4096m"; undefined for the JVM default. */
+let launchMaxHeap: string | undefined;
+
+/** Exit code of a JVM stopped by -XX:+ExitOnOutOfMemoryError. */
+const JVM_OUT_OF_MEMORY_EXIT_CODE = 3;
+
+/** The JVM the appassembler launcher script runs: $JAVACMD, else $JAVA_HOME/bin/java, else java on PATH. */
+function resolveScriptJavaCommand(): string {
+    if (process.env.JAVACMD) {
+        return process.env.JAVACMD;
+    }
+    const javaHome = process.env.JAVA_HOME;
+    if (javaHome) {
+        const javaPath = path.join(javaHome, 'bin', process.platform === 'win32' ? 'java.exe' : 'java');
+        if (fs.existsSync(javaPath)) {
+            return javaPath;
+        }
+    }
+    return 'java';
+}
+
+async function detectJavaVersion(javaCommand: string): Promise<number> {
+    return new Promise((resolve) => {
+        const versionProcess = spawn(javaCommand, ['-version'], { stdio: 'pipe' });
+        let output = '';
+        versionProcess.stderr?.on('data', (chunk) => output += chunk);
+        versionProcess.stdout?.on('data', (chunk) => output += chunk);
+        versionProcess.on('close', () => {
+            const match = /version "(\d+)(?:\.(\d+))?/.exec(output);
+            if (!match) {
+                resolve(0);
+                return;
+            }
+            const major = parseInt(match[1], 10);
+            // Java 8 and older report "1.x"
+            resolve(major === 1 && match[2] ? parseInt(match[2], 10) : major);
+        });
+        versionProcess.on('error', () => resolve(0));
+    });
+}
+
+/**
+ * Total size and count of the .rosetta files the server will load. It indexes every workspace
+ * folder whole, whatever roots and excludeGlobs say, so that is what gets measured.
+ */
+async function measureWorkspaceModel(): Promise<{ bytes: number; files: number }> {
+    // null: files.exclude does not apply to the server either
+    const files = await workspace.findFiles('**/*.rosetta', null);
+    let bytes = 0;
+    for (const file of files) {
+        try {
+            bytes += (await fs.promises.stat(file.fsPath)).size;
+        } catch {
+            // deleted while scanning
+        }
+    }
+    return { bytes, files: files.length };
+}
+
+/** Heap of a profile on this machine: never more than half of its memory. */
+function profileHeapMb(profile: LaunchProfile): number {
+    return Math.max(512, Math.min(profile.maxHeapMb, Math.floor(os.totalmem() / MB / 2)));
+}
+
+/**
+ * JVM flags for the language server sized to the workspace model. Flags already present in
+ * runeDsl.languageServer.javaOpts win over the profile.
+ */
+async function selectLaunchProfileOptions(context: ExtensionContext, javaVersion: number, userJavaOpts: string): Promise<string[]> {
+    const config = workspace.getConfiguration('runeDsl');
+    const setting = config.get<string>('languageServer.launchProfile', 'auto');
+    launchProfileAuto = false;
+    userSetsMaxHeap = /-Xmx\d/.test(userJavaOpts);
+    launchMaxHeap = /-Xmx(\S+)/.exec(userJavaOpts)?.[1];
+    if (setting === 'off') {
+        launchProfile = undefined;
+        return [];
+    }
+
+    let profile = LAUNCH_PROFILES.find(p => p.name === setting);
+    if (!profile) {
+        const { bytes, files } = await measureWorkspaceModel();
+        profile = LAUNCH_PROFILES.find(p => bytes <= p.maxModelBytes && files <= p.maxFiles);
+        // A previous out-of-memory run may have bumped this workspace to a bigger profile
+        const override = LAUNCH_PROFILES.find(p => p.name === context.workspaceState.get<string>(LAUNCH_PROFILE_OVERRIDE_KEY));
+        if (override && LAUNCH_PROFILES.indexOf(override) > LAUNCH_PROFILES.indexOf(profile)) {
+            profile = override;
+        }
+        console.log(`Rune DSL model size: ${files} files, ${(bytes / MB).toFixed(1)} MB -> launch profile '${profile.name}'`);
+        launchProfileAuto = true;
+    }
+    launchProfile = profile;
+
+    const cpus = os.cpus().length;
+    const heapMb = profileHeapMb(profile);
+    const useZgc = profile.gc === 'Z' && javaVersion >= 15;
+    const has = (pattern: RegExp) => pattern.test(userJavaOpts);
+
+    const opts: string[] = [];
+    if (!userSetsMaxHeap) {
+        launchMaxHeap = `${heapMb}m`;
+        opts.push(`-Xmx${launchMaxHeap}`);
+    }
+    if (!has(/-XX:[+-]Use\w*GC\b/)) {
+        opts.push(useZgc ? '-XX:+UseZGC' : '-XX:+UseG1GC');
+        if (useZgc && javaVersion >= 21 && javaVersion < 23) {
+            opts.push('-XX:+ZGenerational');
+        }
+    }
+    if (profile.stringDeduplication && (!useZgc || javaVersion >= 18) && !has(/UseStringDeduplication/)) {
+        opts.push('-XX:+UseStringDeduplication');
+    }
+    if (profile.tuneGcThreads && cpus > 1) {
+        const parallel = Math.min(cpus, 8);
+        if (!has(/ParallelGCThreads/)) {
+            opts.push(`-XX:ParallelGCThreads=${parallel}`);
+        }
+        if (!has(/ConcGCThreads/)) {
+            opts.push(`-XX:ConcGCThreads=${Math.max(1, Math.floor(parallel / 4))}`);
+        }
+    }
+    // Fail fast on heap exhaustion so the client notices and can suggest a bigger profile; with a
+    // user -Xmx there is nothing bigger to suggest
+    if (!userSetsMaxHeap && !has(/OutOfMemoryError/)) {
+        opts.push('-XX:+ExitOnOutOfMemoryError');
+    }
+    return opts;
+}
+
+/**
+ * Offers the next bigger launch profile when the server ran out of memory under the current one.
+ * An explicitly configured profile or heap size is left to the user.
+ */
+async function suggestBiggerLaunchProfile(context: ExtensionContext) {
+    const index = launchProfile ? LAUNCH_PROFILES.indexOf(launchProfile) : -1;
+    if (!launchProfileAuto || userSetsMaxHeap || index < 0 || index === LAUNCH_PROFILES.length - 1) {
+        return;
+    }
+    const next = LAUNCH_PROFILES[index + 1];
+    const choice = await window.showWarningMessage(
+        `The Rune DSL Language Server ran out of memory while using the '${launchProfile.name}' launch profile (max heap ${profileHeapMb(launchProfile)} MB). ` +
+        `Use the '${next.name}' profile (max heap ${profileHeapMb(next)} MB) for this workspace?`,
+        'Use Bigger Profile', 'Not Now'
+    );
+    if (choice === 'Use Bigger Profile') {
+        await context.workspaceState.update(LAUNCH_PROFILE_OVERRIDE_KEY, next.name);
+        const reload = await window.showInformationMessage('Reload the window to restart the language server with the new profile.', 'Reload Window');
+        if (reload === 'Reload Window') {
+            commands.executeCommand('workbench.action.reloadWindow');
+        }
+    }
+}
+
+async function hashFile(filePath: string): Promise<string> {
+    return new Promise((resolve, reject) => {
+        const hash = crypto.createHash('sha256');
+        fs.createReadStream(filePath)
+            .on('data', (chunk) => hash.update(chunk))
+            .on('end', () => resolve(hash.digest('hex')))
+            .on('error', reject);
+    });
+}
+
+/**
+ * AppCDS flags for the language server. The archive is recorded on the first run and reused after
+ * that. It lives in the extension's global storage, keyed by server jar hash and Java version, so
+ * a rebuilt server or a different JDK records a new one. Other VS Code windows share that storage.
+ *
+ * `viaScript` is set when the flags travel through JAVA_OPTS to the launcher script, which splits
+ * them on whitespace without honoring quotes.
+ */
+async function selectClassDataSharingOptions(context: ExtensionContext, javaVersion: number, jarPath: string, userJavaOpts: string, viaScript: boolean): Promise<string[]> {
+    const config = workspace.getConfiguration('runeDsl');
+    if (!config.get<boolean>('languageServer.classDataSharing', true)) {
+        return [];
+    }
+    // Dynamic archives need JDK 13+; respect archives configured by hand
+    if (javaVersion < 13 || !jarPath || !fs.existsSync(jarPath) || /SharedArchiveFile|ArchiveClassesAtExit|-Xshare:off/.test(userJavaOpts)) {
+        return [];
+    }
+    try {
+        const cdsDir = path.join(context.globalStorageUri.fsPath, 'cds');
+        if (viaScript && /\s/.test(cdsDir)) {
+            // e.g. macOS "Application Support"; the path would be cut at the space
+            console.log(`Class data sharing skipped: archive path contains whitespace: ${cdsDir}`);
+            return [];
+        }
+        await fs.promises.mkdir(cdsDir, { recursive: true });
+        const key = `${(await hashFile(jarPath)).substring(0, 16)}-java${javaVersion}`;
+        const archive = path.join(cdsDir, `rune-dsl-ls-${key}.jsa`);
+
+        await removeStaleArchives(cdsDir, archive);
+
+        // JVM warnings go to stdout by default, which is the LSP stream; CDS emits them for
+        // stale or unusable archives, so keep warnings but send them to stderr
+        const logging = /-Xlog/.test(userJavaOpts) ? [] : ['-Xlog:disable', '-Xlog:all=warning:stderr'];
+        if (javaVersion >= 19) {
+            // The JVM validates the archive, records it when missing or stale and maps it otherwise
+            await touchArchive(archive);
+            return [...logging, '-XX:+AutoCreateSharedArchive', `-XX:SharedArchiveFile=${archive}`];
+        }
+        if (fs.existsSync(archive)) {
+            await touchArchive(archive);
+            return [...logging, `-XX:SharedArchiveFile=${archive}`];
+        }
+        // A dump cut short (server killed on stop timeout) must never become the archive, so record
+        // under a name of this window's own and promote it only after a clean exit
+        const recording = `${archive}.${process.pid}.tmp`;
+        pendingCdsRecording = { recording, archive };
+        console.log(`Recording class data sharing archive for the language server: ${archive}`);
+        return [...logging, `-XX:ArchiveClassesAtExit=${recording}`];
+    } catch (error) {
+        console.warn('Class data sharing disabled:', error);
+        return [];
+    }
+}
+
+const CDS_ARCHIVE_RETENTION_MS = 30 * 24 * 60 * 60 * 1000;
+const CDS_RECORDING_RETENTION_MS = 24 * 60 * 60 * 1000;
+
+let pendingCdsRecording: { recording: string; archive: string } | undefined;
+
+/**
+ * Removes archives no window has used for a month and recordings abandoned for a day. Archives
+ * of other keys may belong to a window running another JDK, so they are not removed on sight.
+ */
+async function removeStaleArchives(cdsDir: string, archive: string) {
+    const now = Date.now();
+    for (const file of await fs.promises.readdir(cdsDir)) {
+        const filePath = path.join(cdsDir, file);
+        const retention = file.endsWith('.tmp') ? CDS_RECORDING_RETENTION_MS : file.endsWith('.jsa') ? CDS_ARCHIVE_RETENTION_MS : undefined;
+        if (retention === undefined || filePath === archive) {
+            continue;
+        }
+        try {
+            if (now - (await fs.promises.stat(filePath)).mtimeMs > retention) {
+                await fs.promises.rm(filePath, { force: true });
+            }
+        } catch {
+            // in use (Windows keeps mapped archives locked) or removed by another window
+        }
+    }
+}
+
+/** Marks an archive as in use so other windows keep it. */
+async function touchArchive(archive: string) {
+    const now = new Date();
+    await fs.promises.utimes(archive, now, now).catch(() => { /* not recorded yet */ });
+}
+
+/**
+ * Promotes the archive recorded by a server that exited cleanly; anything else is discarded. The
+ * launch flags are fixed for the session, so restarts record again and refresh the archive.
+ */
+function finishClassDataSharingRecording(exitCode: number | null) {
+    if (!pendingCdsRecording) {
+        return;
+    }
+    const { recording, archive } = pendingCdsRecording;
+    try {
+        if (exitCode === 0 && fs.existsSync(recording)) {
+            fs.renameSync(recording, archive);
+            console.log(`Class data sharing archive recorded: ${archive}`);
+            return;
+        }
+    } catch (error) {
+        console.warn('Could not keep the class data sharing archive:', error);
+    }
+    fs.rmSync(recording, { force: true });
+}
+
+async function createServerOptions(context: ExtensionContext): Promise<{ run: Executable; debug: Executable }> {
     const { scriptPath, jarPath } = getLanguageServerPath(context);
     const config = workspace.getConfiguration('runeDsl');
     const javaOpts = config.get<string>('languageServer.javaOpts', '');
@@ -128,6 +430,15 @@ async function createServerOptions(context: ExtensionContext): Promise<ServerOpt
         dProps.push(`-Drune.codegen.outputDir=${javaGenOutputPath}`);
     }
     const dPropsString = dProps.map(p => p.includes(' ') ? `"${p}"` : p).join(' ');
+    const javaCommand = await detectJavaCommand();
+    // Profile and CDS flags must suit the JVM that actually runs them; the launcher script picks its own
+    const javaVersion = await detectJavaVersion(fs.existsSync(scriptPath) ? resolveScriptJavaCommand() : javaCommand);
+    const profileOpts = [
+        ...await selectLaunchProfileOptions(context, javaVersion, javaOpts),
+        ...await selectClassDataSharingOptions(context, javaVersion, jarPath, javaOpts, fs.existsSync(scriptPath))
+    ];
+    // None of these contain whitespace, so they survive the script's unquoted $JAVA_OPTS
+    const profileOptsString = profileOpts.join(' ');
     
     // Check if script exists and is executable
     if (fs.existsSync(scriptPath)) {
@@ -151,7 +462,7 @@ async function createServerOptions(context: ExtensionContext): Promise<ServerOpt
                 effectiveScriptPath = scriptPath.replace(/\\/g, '/');
             }
             
-            const combinedJavaOpts = [javaOpts, dPropsString].filter(Boolean).join(' ').trim();
+            const combinedJavaOpts = [profileOptsString, javaOpts, dPropsString].filter(Boolean).join(' ').trim();
             runOptions.env = { ...process.env, ...(combinedJavaOpts ? { JAVA_OPTS: combinedJavaOpts } : {}) };
             debugOptions.env = { ...debugOptions.env, ...(combinedJavaOpts ? { JAVA_OPTS: combinedJavaOpts } : {}) };
             
@@ -166,10 +477,9 @@ async function createServerOptions(context: ExtensionContext): Promise<ServerOpt
     
     // Fallback to direct JAR execution
     if (jarPath && fs.existsSync(jarPath)) {
-        const javaCommand = await detectJavaCommand();
         const baseArgs = ['-jar', jarPath];
         
-        const preArgs: string[] = [];
+        const preArgs: string[] = [...profileOpts];
         if (javaOpts) {
             preArgs.push(...javaOpts.split(' ').filter(opt => opt.trim()));
         }
@@ -193,9 +503,263 @@ async function createServerOptions(context: ExtensionContext): Promise<ServerOpt
     throw new Error(`Language server not found. Expected script at: ${scriptPath} or JAR at: ${jarPath}`);
 }
 
+/**
+ * Coalesces file watcher events (git checkouts, bulk saves) into a single batch per URI so the
+ * server rebuilds and regenerates once after the storm settles instead of once per event.
+ */
+function createFileEventDebouncer(delayMs: number) {
+    const pending = new Map<string, FileEvent>();
+    let timer: NodeJS.Timeout | undefined;
+    let forward: ((event: FileEvent) => Promise<void>) | undefined;
+
+    const merge = (previous: FileEvent | undefined, event: FileEvent): FileEvent | undefined => {
+        if (!previous) {
+            return event;
+        }
+        if (previous.type === FileChangeType.Created && event.type === FileChangeType.Deleted) {
+            return undefined; // transient file, the server never needs to see it
+        }
+        if (previous.type === FileChangeType.Created && event.type === FileChangeType.Changed) {
+            return previous;
+        }
+        if (previous.type === FileChangeType.Deleted && event.type === FileChangeType.Created) {
+            return { uri: event.uri, type: FileChangeType.Changed };
+        }
+        return event;
+    };
+
+    const flush = async () => {
+        timer = undefined;
+        const events = Array.from(pending.values());
+        pending.clear();
+        for (const event of events) {
+            await forward?.(event);
+        }
+    };
+
+    return (event: FileEvent, next: (event: FileEvent) => Promise<void>): Promise<void> => {
+        if (delayMs <= 0) {
+            return next(event);
+        }
+        forward = next;
+        const merged = merge(pending.get(event.uri), event);
+        if (merged) {
+            pending.set(event.uri, merged);
+        } else {
+            pending.delete(event.uri);
+        }
+        if (timer) {
+            clearTimeout(timer);
+        }
+        timer = setTimeout(() => {
+            flush().catch(error => console.error('Failed to forward file events:', error));
+        }, delayMs);
+        return Promise.resolve();
+    };
+}
+
+const LATENCY_BUCKETS_MS = [10, 50, 100, 250, 500, 1000, 2500];
+const LATENCY_SAMPLES = 200;
+/** Diagnostics silence that ends the initial workspace build. */
+const INITIAL_BUILD_QUIET_MS = 5000;
+
+interface LatencyStats {
+    count: number;
+    totalMs: number;
+    maxMs: number;
+    /** Counts per LATENCY_BUCKETS_MS upper bound, plus one overflow bucket. */
+    buckets: number[];
+    /** Most recent samples, used for percentiles. */
+    samples: number[];
+}
+
+/** Client-side view of language server performance, reset on every server start. */
+const serverMetrics = {
+    startRequestedAt: 0,
+    startupMs: undefined as number | undefined,
+    initialBuildMs: undefined as number | undefined,
+    initialBuildDone: false,
+    firstEditAt: undefined as number | undefined,
+    lastValidationMs: undefined as number | undefined,
+    validatedUris: new Set<string>(),
+    pendingEdits: new Map<string, number>(),
+    latencies: new Map<string, LatencyStats>()
+};
+
+let currentStatus = '';
+let metricsStatusTimer: NodeJS.Timeout | undefined;
+let initialBuildTimer: NodeJS.Timeout | undefined;
+
+function resetServerMetrics() {
+    serverMetrics.startRequestedAt = Date.now();
+    serverMetrics.startupMs = undefined;
+    serverMetrics.initialBuildMs = undefined;
+    serverMetrics.initialBuildDone = false;
+    clearTimeout(initialBuildTimer);
+    serverMetrics.firstEditAt = undefined;
+    serverMetrics.lastValidationMs = undefined;
+    serverMetrics.validatedUris.clear();
+    serverMetrics.pendingEdits.clear();
+    serverMetrics.latencies.clear();
+}
+
+function recordLatency(method: string, ms: number) {
+    let stats = serverMetrics.latencies.get(method);
+    if (!stats) {
+        stats = { count: 0, totalMs: 0, maxMs: 0, buckets: new Array(LATENCY_BUCKETS_MS.length + 1).fill(0), samples: [] };
+        serverMetrics.latencies.set(method, stats);
+    }
+    stats.count++;
+    stats.totalMs += ms;
+    stats.maxMs = Math.max(stats.maxMs, ms);
+    const bucket = LATENCY_BUCKETS_MS.findIndex(limit => ms < limit);
+    stats.buckets[bucket < 0 ? LATENCY_BUCKETS_MS.length : bucket]++;
+    stats.samples.push(ms);
+    if (stats.samples.length > LATENCY_SAMPLES) {
+        stats.samples.shift();
+    }
+}
+
+function percentile(samples: number[], p: number): number {
+    if (samples.length === 0) {
+        return 0;
+    }
+    const sorted = [...samples].sort((a, b) => a - b);
+    return sorted[Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+}
+
+function recordDiagnostics(uri: string) {
+    const now = Date.now();
+    serverMetrics.validatedUris.add(uri);
+    const editedAt = serverMetrics.pendingEdits.get(uri);
+    if (editedAt !== undefined) {
+        serverMetrics.pendingEdits.delete(uri);
+        serverMetrics.lastValidationMs = now - editedAt;
+        recordLatency('validation (edit to diagnostics)', serverMetrics.lastValidationMs);
+    }
+    if (!serverMetrics.initialBuildDone) {
+        // The initial workspace build lasts until diagnostics go quiet or the user starts editing
+        serverMetrics.initialBuildMs = now - serverMetrics.startRequestedAt;
+        clearTimeout(initialBuildTimer);
+        initialBuildTimer = setTimeout(endInitialBuild, INITIAL_BUILD_QUIET_MS);
+    }
+    scheduleMetricsStatusUpdate();
+}
+
+function endInitialBuild() {
+    clearTimeout(initialBuildTimer);
+    serverMetrics.initialBuildDone = true;
+}
+
+function recordEdit(uri: string) {
+    const now = Date.now();
+    endInitialBuild();
+    serverMetrics.firstEditAt = serverMetrics.firstEditAt ?? now;
+    serverMetrics.pendingEdits.set(uri, now);
+}
+
+/** Wraps provider middleware so every request the editor sends to the server is timed. */
+function createTimedMiddleware(): Middleware {
+    const timed = (method: string) => (...args: any[]) => {
+        const next = args[args.length - 1];
+        const start = Date.now();
+        // Failed and cancelled requests count too; leaving them out would flatter the histograms
+        return new Promise((resolve) => resolve(next(...args.slice(0, -1))))
+            .finally(() => recordLatency(method, Date.now() - start));
+    };
+    return {
+        provideCompletionItem: timed('textDocument/completion'),
+        provideHover: timed('textDocument/hover'),
+        provideDefinition: timed('textDocument/definition'),
+        provideReferences: timed('textDocument/references'),
+        provideDocumentHighlights: timed('textDocument/documentHighlight'),
+        provideDocumentSymbols: timed('textDocument/documentSymbol'),
+        provideCodeActions: timed('textDocument/codeAction'),
+        provideDocumentFormattingEdits: timed('textDocument/formatting'),
+        provideRenameEdits: timed('textDocument/rename'),
+        provideSignatureHelp: timed('textDocument/signatureHelp'),
+        provideDocumentSemanticTokens: timed('textDocument/semanticTokens/full'),
+        provideInlayHints: timed('textDocument/inlayHint')
+    } as Middleware;
+}
+
+function formatMs(ms: number | undefined): string {
+    if (ms === undefined) {
+        return 'n/a';
+    }
+    return ms >= 1000 ? `${(ms / 1000).toFixed(1)} s` : `${ms} ms`;
+}
+
+function metricsSummary(): string {
+    const parts = [`${serverMetrics.validatedUris.size} files`];
+    if (serverMetrics.lastValidationMs !== undefined) {
+        parts.push(`validate ${formatMs(serverMetrics.lastValidationMs)}`);
+    } else if (serverMetrics.initialBuildMs !== undefined) {
+        parts.push(`build ${formatMs(serverMetrics.initialBuildMs)}`);
+    }
+    return parts.join(', ');
+}
+
+function scheduleMetricsStatusUpdate() {
+    if (metricsStatusTimer) {
+        return;
+    }
+    metricsStatusTimer = setTimeout(() => {
+        metricsStatusTimer = undefined;
+        if (currentStatus === 'Running') {
+            updateStatusBar('Running', statusBarItem?.color as string | undefined);
+        }
+    }, 1000);
+}
+
+function buildMetricsReport(): string {
+    const lines: string[] = [];
+    const heapSource = userSetsMaxHeap ? 'javaOpts' : launchProfile ? `${launchProfile.name} profile` : undefined;
+    const heap = launchMaxHeap ? `-Xmx${launchMaxHeap} (${heapSource})` : 'JVM default';
+    lines.push('Rune DSL Language Server metrics (measured by the client)');
+    lines.push('');
+    lines.push(`Max heap:             ${heap}`);
+    lines.push(`Startup:              ${formatMs(serverMetrics.startupMs)}`);
+    lines.push(`Initial build:        ${formatMs(serverMetrics.initialBuildMs)} (until diagnostics go quiet or the first edit)`);
+    lines.push(`Validated resources:  ${serverMetrics.validatedUris.size}`);
+    lines.push(`Last validation:      ${formatMs(serverMetrics.lastValidationMs)} (edit to diagnostics)`);
+    lines.push('');
+    const header = ['method', 'count', 'avg', 'p50', 'p95', 'max', ...LATENCY_BUCKETS_MS.map(b => `<${b}`), `>=${LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1]}`];
+    lines.push(header.join('\t'));
+    const methods = Array.from(serverMetrics.latencies.keys()).sort();
+    for (const method of methods) {
+        const stats = serverMetrics.latencies.get(method);
+        lines.push([
+            method,
+            stats.count,
+            Math.round(stats.totalMs / stats.count),
+            percentile(stats.samples, 0.5),
+            percentile(stats.samples, 0.95),
+            stats.maxMs,
+            ...stats.buckets
+        ].join('\t'));
+    }
+    if (methods.length === 0) {
+        lines.push('(no requests yet)');
+    }
+    return lines.join('\n');
+}
+
+let metricsChannel: OutputChannel | undefined;
+
+function showMetrics() {
+    metricsChannel = metricsChannel || window.createOutputChannel('Rune DSL Metrics');
+    metricsChannel.clear();
+    metricsChannel.appendLine(buildMetricsReport());
+    metricsChannel.show(true);
+}
+
 function updateStatusBar(status: string, color?: string) {
+    currentStatus = status;
     if (statusBarItem) {
-        statusBarItem.text = `$(pulse) Rune DSL: ${status}`;
+        const summary = status === 'Running' && serverMetrics.validatedUris.size > 0 ? ` (${metricsSummary()})` : '';
+        statusBarItem.text = `$(pulse) Rune DSL: ${status}${summary}`;
+        statusBarItem.tooltip = status === 'Running' ? buildMetricsReport() : undefined;
         statusBarItem.color = color;
         statusBarItem.show();
     }
@@ -490,7 +1054,12 @@ async function restartLanguageServer() {
     try {
         updateStatusBar('Restarting...', '#FFA500');
         if (lc) {
-            await lc.stop();
+            stoppingLanguageServer = true;
+            try {
+                await lc.stop();
+            } finally {
+                stoppingLanguageServer = false;
+            }
         }
         await startLanguageServer();
         window.showInformationMessage('Rune DSL Language Server restarted successfully');
@@ -555,11 +1124,13 @@ async function startLanguageServer() {
     
     lc.setTrace(trace);
     
+    resetServerMetrics();
     updateStatusBar('Starting...', '#FFFF00');
     console.log("Launching Rune DSL Language Server...");
     
     try {
         await lc.start();
+        serverMetrics.startupMs = Date.now() - serverMetrics.startRequestedAt;
         console.log("Rune DSL Language Server started.");
         updateStatusBar('Running', '#00FF00');
     } catch (err: any) {
@@ -613,6 +1184,7 @@ export async function activate(context: ExtensionContext) {
     const restartLanguageServerCommand = commands.registerCommand('runeDsl.restartLanguageServer', restartLanguageServer);
     const toggleJavaGenerationCommand = commands.registerCommand('runeDsl.toggleJavaGeneration', toggleJavaGeneration);
     const resetPromptStatesCommand = commands.registerCommand('runeDsl.resetPromptStates', () => resetPromptStates(context));
+    const showMetricsCommand = commands.registerCommand('runeDsl.showMetrics', showMetrics);
     
     context.subscriptions.push(
         copyBasicTypesCommand, 
@@ -620,18 +1192,28 @@ export async function activate(context: ExtensionContext) {
         openSettingsCommand, 
         restartLanguageServerCommand, 
         toggleJavaGenerationCommand,
-        resetPromptStatesCommand
+        resetPromptStatesCommand,
+        showMetricsCommand
     );
     
     try {
         // Create server options with cross-platform compatibility
-        const serverOptions = await createServerOptions(context);
+        let suggestedBiggerProfile = false;
+        const serverOptions = trackServerExit(await createServerOptions(context), (code) => {
+            finishClassDataSharingRecording(code);
+            if (code === JVM_OUT_OF_MEMORY_EXIT_CODE && !stoppingLanguageServer && !suggestedBiggerProfile) {
+                suggestedBiggerProfile = true;
+                suggestBiggerLaunchProfile(context);
+            }
+        });
         
         // Create the language client and options with scoped watching
         const cfg = workspace.getConfiguration('runeDsl');
         const roots = cfg.get<string[]>('workspace.roots', []);
         const onlyOpenFiles = cfg.get<boolean>('workspace.onlyOpenFiles', false);
 
+        const debounceFileEvent = createFileEventDebouncer(cfg.get<number>('languageServer.fileEventDebounceMs', 500));
+
         const watchers = [] as Array<ReturnType<typeof workspace.createFileSystemWatcher>>;
         if (!onlyOpenFiles) {
             if (roots.length > 0) {
@@ -656,6 +1238,20 @@ export async function activate(context: ExtensionContext) {
             initializationOptions: {
                 workspaceRoots: roots,
                 onlyOpenFiles
+            },
+            middleware: {
+                ...createTimedMiddleware(),
+                didChange: (event, next) => {
+                    recordEdit(event.document.uri.toString());
+                    return next(event);
+                },
+                handleDiagnostics: (uri, diagnostics, next) => {
+                    recordDiagnostics(uri.toString());
+                    next(uri, diagnostics);
+                },
+                workspace: {
+                    didChangeWatchedFile: (event, next) => debounceFileEvent(event, next)
+                }
             }
         };
         
@@ -717,9 +1313,24 @@ export function deactivate() {
     if (statusBarItem) {
         statusBarItem.dispose();
     }
+    stoppingLanguageServer = true;
     return lc?.stop();
 }
 
+/**
+ * Spawns the server from the run executable, or the debug one when the extension host is being
+ * debugged (as the language client would), so the client sees how the server exited.
+ */
+function trackServerExit(executables: { run: Executable; debug: Executable }, onExit: (code: number | null) => void): ServerOptions {
+    return async () => {
+        const debug = process.execArgv.some(arg => /^--(inspect|debug)(-brk)?(=|$)/.test(arg));
+        const { command, args, options } = debug ? executables.debug : executables.run;
+        const child = spawn(command, args || [], { cwd: workspace.workspaceFolders?.[0]?.uri.fsPath, ...options });
+        child.on('exit', (code) => onExit(code));
+        return child;
+    };
+}
+
 function createDebugEnv() {
     const config = workspace.getConfiguration('runeDsl');
     const customJavaOpts = config.get<string>('languageServer.javaOpts', '');